@@ -0,0 +1,430 @@
+// 14. Thread State Sampling
+// Problem: task3 prints thread.getState() by hand at three points. Get the same visibility for every thread of a running program.
+// Task: Write a Java program that samples all threads with ThreadMXBean at a fixed interval, builds per-thread and per-pool
+// state histograms, tracks blocked/waited time and the most contended monitors, and exports the result as a summary or a binary file.
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This program runs a small lock convoy (several workers hammering one synchronized account, just like
+ * BankAccount in task4) while a background sampler records what every thread is doing.
+ * At the end it prints the summary and writes the raw samples to a binary file.
+ *
+ * Usage: java task14 [intervalMillis] [outputFile]
+ *
+ * Author: Aman Malik - amanxcvii
+ */
+public class task14 {
+
+    public static void main(String[] args) throws Exception {
+        long intervalMillis = args.length > 0 ? Long.parseLong(args[0]) : 5;
+        Path output = Paths.get(args.length > 1 ? args[1] : "thread-states.bin");
+
+        // Sample every intervalMillis, keep the last 64k records, print a summary every second
+        ThreadStateSampler sampler = new ThreadStateSampler(intervalMillis, 1 << 16, 1000);
+        sampler.start();
+
+        SampledAccount account = new SampledAccount(1000);
+        ExecutorService service = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) {
+            service.submit(() -> {
+                for (int j = 0; j < 200; j++) {
+                    account.deposit(10);
+                    account.withdraw(10);
+                }
+            });
+        }
+        service.shutdown();
+        service.awaitTermination(1, TimeUnit.MINUTES);
+
+        sampler.stop();
+        System.out.println(sampler.summary());
+        sampler.writeBinary(output);
+        System.out.println("Raw samples written to " + output.toAbsolutePath());
+    }
+}
+
+/**
+ * Account whose synchronized methods hold the monitor long enough to form a convoy.
+ */
+class SampledAccount {
+    private int balance;
+
+    SampledAccount(int amount) {
+        this.balance = amount;
+    }
+
+    synchronized void deposit(int amount) {
+        this.balance += amount;
+        pause();
+    }
+
+    synchronized void withdraw(int amount) {
+        if (amount <= balance) {
+            this.balance -= amount;
+        }
+        pause();
+    }
+
+    // Simulate verification work done while holding the lock
+    private static void pause() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+/**
+ * Background sampler built on ThreadMXBean.
+ *
+ * Every tick it takes one snapshot of all live threads and, for each thread in RUNNABLE, BLOCKED,
+ * WAITING or TIMED_WAITING, writes a fixed-size record into a ring buffer made of preallocated
+ * primitive arrays, so recording a sample never allocates. Cumulative histograms per thread and per
+ * pool, and blocked-sample counts per monitor, are kept alongside for the summary.
+ *
+ * A thread that has died is dropped from the per-thread table once no record in the ring buffer refers
+ * to it any more; its samples stay counted in its pool. The table is therefore bounded by the live
+ * threads plus the threads still referenced by the ring buffer, however many threads come and go.
+ *
+ * ThreadMXBean itself still returns a fresh ThreadInfo[] per snapshot, and the per-thread and
+ * per-monitor lookups box their long/int keys; that is the price of not attaching a real profiler.
+ */
+class ThreadStateSampler implements Runnable {
+    static final int RUNNABLE = 0;
+    static final int BLOCKED = 1;
+    static final int WAITING = 2;
+    static final int TIMED_WAITING = 3;
+    private static final String[] STATE_NAMES = {"RUNNABLE", "BLOCKED", "WAITING", "TIMED_WAITING"};
+
+    private static final int MAGIC = 0x54535331; // "TSS1"
+    private static final int TOP_MONITORS = 5;
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final long intervalMillis;
+    private final long summaryEveryMillis;
+
+    // Ring buffer, one slot per (tick, thread) record
+    private final int mask;
+    private final long[] sampleTimes;
+    private final long[] threadIds;
+    private final byte[] states;
+    private final long[] blockedDeltas;
+    private final long[] waitedDeltas;
+    private final int[] lockHashes;
+    private long written;
+
+    private final Map<Long, ThreadStats> threadStats = new HashMap<>();
+    private final Map<String, long[]> poolHistograms = new HashMap<>();
+    private final Map<Integer, MonitorStats> monitorStats = new HashMap<>();
+    private long ticks;
+
+    private volatile boolean running;
+    private Thread worker;
+    private boolean enabledContentionMonitoring; // true if start() turned it on and stop() must turn it off
+
+    /**
+     * @param intervalMillis     Time between two snapshots
+     * @param capacity           Ring buffer size in records, rounded up to a power of two
+     * @param summaryEveryMillis Print a summary this often while running, 0 to disable
+     */
+    ThreadStateSampler(long intervalMillis, int capacity, long summaryEveryMillis) {
+        if (intervalMillis <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("interval and capacity must be positive");
+        }
+        this.intervalMillis = intervalMillis;
+        this.summaryEveryMillis = summaryEveryMillis;
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.sampleTimes = new long[size];
+        this.threadIds = new long[size];
+        this.states = new byte[size];
+        this.blockedDeltas = new long[size];
+        this.waitedDeltas = new long[size];
+        this.lockHashes = new int[size];
+    }
+
+    synchronized void start() {
+        if (worker != null) {
+            throw new IllegalStateException("sampler already started");
+        }
+        // Blocked/waited times are only reported when contention monitoring is on; stop() puts it back
+        if (threadBean.isThreadContentionMonitoringSupported()
+                && !threadBean.isThreadContentionMonitoringEnabled()) {
+            threadBean.setThreadContentionMonitoringEnabled(true);
+            enabledContentionMonitoring = true;
+        }
+        running = true;
+        worker = new Thread(this, "thread-state-sampler");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    void stop() throws InterruptedException {
+        Thread current;
+        synchronized (this) {
+            current = worker;
+        }
+        running = false;
+        if (current != null) {
+            current.interrupt();
+            current.join();
+        }
+        synchronized (this) {
+            if (enabledContentionMonitoring) {
+                threadBean.setThreadContentionMonitoringEnabled(false);
+                enabledContentionMonitoring = false;
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        long nextSummary = System.currentTimeMillis() + summaryEveryMillis;
+        while (running) {
+            sample();
+            if (summaryEveryMillis > 0 && System.currentTimeMillis() >= nextSummary) {
+                System.out.println(summary());
+                nextSummary += summaryEveryMillis;
+            }
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                // stop() interrupts us; the loop condition decides whether to exit
+            }
+        }
+    }
+
+    // Take one snapshot of all live threads and record it
+    synchronized void sample() {
+        long now = System.nanoTime();
+        long self = Thread.currentThread().getId();
+        ThreadInfo[] infos = threadBean.getThreadInfo(threadBean.getAllThreadIds(), 0);
+        ticks++;
+
+        for (ThreadInfo info : infos) {
+            if (info == null || info.getThreadId() == self) {
+                continue; // thread died between the two calls, or it is us
+            }
+            int state = stateIndex(info.getThreadState());
+            if (state < 0) {
+                continue;
+            }
+
+            ThreadStats stats = threadStats.get(info.getThreadId());
+            if (stats == null) {
+                stats = new ThreadStats(info.getThreadName());
+                threadStats.put(info.getThreadId(), stats);
+            }
+            long blockedDelta = delta(info.getBlockedTime(), stats.lastBlockedTime);
+            long waitedDelta = delta(info.getWaitedTime(), stats.lastWaitedTime);
+            stats.lastSeenTick = ticks;
+            stats.lastBlockedTime = info.getBlockedTime();
+            stats.lastWaitedTime = info.getWaitedTime();
+            stats.histogram[state]++;
+            stats.blockedMillis += blockedDelta;
+            stats.waitedMillis += waitedDelta;
+
+            long[] pool = poolHistograms.get(stats.pool);
+            if (pool == null) {
+                pool = new long[STATE_NAMES.length];
+                poolHistograms.put(stats.pool, pool);
+            }
+            pool[state]++;
+
+            int lockHash = 0;
+            LockInfo lock = info.getLockInfo();
+            if (state == BLOCKED && lock != null) {
+                lockHash = lock.getIdentityHashCode();
+                MonitorStats monitor = monitorStats.get(lockHash);
+                if (monitor == null) {
+                    monitor = new MonitorStats(lock.getClassName(), lockHash);
+                    monitorStats.put(lockHash, monitor);
+                }
+                monitor.blockedSamples++;
+                monitor.lastOwner = info.getLockOwnerName();
+            }
+
+            stats.lastRecord = written;
+            int slot = (int) (written++ & mask);
+            sampleTimes[slot] = now;
+            threadIds[slot] = info.getThreadId();
+            states[slot] = (byte) state;
+            blockedDeltas[slot] = blockedDelta;
+            waitedDeltas[slot] = waitedDelta;
+            lockHashes[slot] = lockHash;
+        }
+
+        // Forget threads that are gone and no longer referenced by any record in the ring buffer
+        long oldestRecord = written - (mask + 1);
+        Iterator<ThreadStats> it = threadStats.values().iterator();
+        while (it.hasNext()) {
+            ThreadStats stats = it.next();
+            if (stats.lastSeenTick != ticks && stats.lastRecord < oldestRecord) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Builds a human readable report of everything sampled so far.
+     * The per-thread table only lists threads seen in the latest tick; pools include threads that have died.
+     */
+    synchronized String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Thread state samples: %d records over %d ticks (every %d ms)%n",
+                written, ticks, intervalMillis));
+        sb.append(String.format("%-32s %9s %9s %9s %13s %11s %11s%n",
+                "Live thread", STATE_NAMES[0], STATE_NAMES[1], STATE_NAMES[2], STATE_NAMES[3], "blocked ms", "waited ms"));
+        for (ThreadStats stats : threadStats.values()) {
+            if (stats.lastSeenTick != ticks) {
+                continue;
+            }
+            long[] h = stats.histogram;
+            sb.append(String.format("%-32s %9d %9d %9d %13d %11d %11d%n",
+                    stats.name, h[0], h[1], h[2], h[3], stats.blockedMillis, stats.waitedMillis));
+        }
+
+        sb.append(String.format("%n%-32s %9s %9s %9s %13s%n",
+                "Pool", STATE_NAMES[0], STATE_NAMES[1], STATE_NAMES[2], STATE_NAMES[3]));
+        for (Map.Entry<String, long[]> entry : poolHistograms.entrySet()) {
+            long[] h = entry.getValue();
+            sb.append(String.format("%-32s %9d %9d %9d %13d%n", entry.getKey(), h[0], h[1], h[2], h[3]));
+        }
+
+        List<MonitorStats> monitors = new ArrayList<>(monitorStats.values());
+        monitors.sort((a, b) -> Long.compare(b.blockedSamples, a.blockedSamples));
+        sb.append(String.format("%nMost contended monitors%n"));
+        if (monitors.isEmpty()) {
+            sb.append("  none\n");
+        }
+        for (int i = 0; i < Math.min(TOP_MONITORS, monitors.size()); i++) {
+            MonitorStats m = monitors.get(i);
+            sb.append(String.format("  %s@%x  blocked samples: %d  last owner: %s%n",
+                    m.className, m.identityHash, m.blockedSamples, m.lastOwner));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the records still held in the ring buffer, oldest first.
+     *
+     * Layout (big endian): int magic, long intervalMillis, int threadCount, then per thread
+     * (long id, UTF name), then int recordCount and per record
+     * (long nanoTime, long threadId, byte state, long blockedDeltaMs, long waitedDeltaMs, int lockHash).
+     */
+    synchronized void writeBinary(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(intervalMillis);
+
+            out.writeInt(threadStats.size());
+            for (Map.Entry<Long, ThreadStats> entry : threadStats.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeUTF(entry.getValue().name);
+            }
+
+            long first = Math.max(0, written - (mask + 1));
+            out.writeInt((int) (written - first));
+            for (long i = first; i < written; i++) {
+                int slot = (int) (i & mask);
+                out.writeLong(sampleTimes[slot]);
+                out.writeLong(threadIds[slot]);
+                out.writeByte(states[slot]);
+                out.writeLong(blockedDeltas[slot]);
+                out.writeLong(waitedDeltas[slot]);
+                out.writeInt(lockHashes[slot]);
+            }
+        }
+    }
+
+    private static int stateIndex(Thread.State state) {
+        switch (state) {
+            case RUNNABLE:
+                return RUNNABLE;
+            case BLOCKED:
+                return BLOCKED;
+            case WAITING:
+                return WAITING;
+            case TIMED_WAITING:
+                return TIMED_WAITING;
+            default:
+                return -1; // NEW and TERMINATED are not interesting here
+        }
+    }
+
+    // -1 means contention monitoring is off or this is the first sample
+    private static long delta(long current, long previous) {
+        return current < 0 || previous < 0 ? 0 : current - previous;
+    }
+
+    /**
+     * Groups threads by name with the trailing counter removed,
+     * e.g. "pool-1-thread-3" -> "pool-1", "ForkJoinPool-1-worker-5" -> "ForkJoinPool-1-worker", "Thread-7" -> "Thread".
+     */
+    static String poolOf(String threadName) {
+        int end = threadName.length();
+        while (end > 0 && Character.isDigit(threadName.charAt(end - 1))) {
+            end--;
+        }
+        if (end == threadName.length() || end == 0) {
+            return threadName;
+        }
+        if (threadName.charAt(end - 1) == '-') {
+            end--;
+        }
+        String pool = threadName.substring(0, end);
+        return pool.endsWith("-thread") ? pool.substring(0, pool.length() - "-thread".length()) : pool;
+    }
+
+    private static final class ThreadStats {
+        final String name;
+        final String pool;
+        final long[] histogram = new long[STATE_NAMES.length];
+        long lastSeenTick;
+        long lastRecord = -1;
+        long lastBlockedTime = -1;
+        long lastWaitedTime = -1;
+        long blockedMillis;
+        long waitedMillis;
+
+        ThreadStats(String name) {
+            this.name = name;
+            this.pool = poolOf(name);
+        }
+    }
+
+    private static final class MonitorStats {
+        final String className;
+        final int identityHash;
+        long blockedSamples;
+        String lastOwner;
+
+        MonitorStats(String className, int identityHash) {
+            this.className = className;
+            this.identityHash = identityHash;
+        }
+    }
+}
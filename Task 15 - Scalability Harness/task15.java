@@ -0,0 +1,541 @@
+// 15. Scalability Harness
+// Problem: Every taskN.main hard-codes its thread count (2 in task2, 10 in task6, 4 in task7/task8, the default pool in task9) and measures nothing.
+// Task: Write a Java program that runs the workloads from those tasks behind a common interface, sweeps thread counts,
+// input sizes and warmup settings, and reports speedup, efficiency and an Amdahl's law fit as CSV.
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This program measures where each threading pattern from the earlier tasks stops scaling.
+ *
+ * For every workload, input size and warmup setting it runs the workload with each thread count,
+ * takes the median wall time and prints one CSV row per thread count:
+ *
+ *   workload,size,warmup,threads,median_ms,speedup,efficiency,serial_fraction,amdahl_speedup
+ *
+ * speedup is T(1) / T(p), efficiency is speedup / p, and serial_fraction is the least-squares fit of
+ * Amdahl's law T(p) / T(1) = f + (1 - f) / p over all thread counts of that workload and size.
+ *
+ * Every (workload, size, warmup) configuration runs in a fresh JVM, so JIT state from one configuration
+ * never leaks into the next and warmup=0 really is cold. Inside a configuration all thread counts get
+ * the same treatment: the warmup rounds run every thread count untimed, and the timed runs are
+ * interleaved round-robin, so no thread count absorbs the compilation cost for the others. Cold rows
+ * (warmup=0) still include class loading and JIT compilation running alongside the workload, so read
+ * them as start-up cost, not as scaling numbers.
+ * --fork=false runs everything in this JVM instead; the rows are then only comparable within one warmup setting.
+ *
+ * Forked JVMs are started with the same JVM options as this one (-Xmx, GC choice, -XX flags, ...),
+ * minus debugger agents, followed by anything given in --jvmArgs (space separated).
+ * --header=false leaves out the CSV header line; forked JVMs use it so their rows can be concatenated.
+ *
+ * Usage: java task15 [--workloads=sumThread,sumThread1,IncrementTask,processSentence,sumTask]
+ *                    [--threads=1,2,4,...] [--sizes=100000,1000000] [--warmup=0,10] [--runs=5]
+ *                    [--fork=true] [--jvmArgs="-Xmx8g -XX:+UseNUMA"] [--header=true] [--out=file.csv]
+ *
+ * Author: Aman Malik - amanxcvii
+ */
+public class task15 {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+
+        List<Workload> workloads = selectWorkloads(options.getOrDefault("workloads", "all"));
+        int[] threads = parseInts(options.getOrDefault("threads", defaultThreadCounts()));
+        int[] sizes = parseInts(options.getOrDefault("sizes", "100000,1000000"));
+        int[] warmups = parseInts(options.getOrDefault("warmup", "0,10"));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        if (runs < 1) {
+            throw new IllegalArgumentException("runs must be at least 1: " + runs);
+        }
+
+        // Speedup is relative to the single-threaded run, so it is always measured
+        TreeSet<Integer> sweep = new TreeSet<>();
+        sweep.add(1);
+        for (int t : threads) {
+            if (t < 1) {
+                throw new IllegalArgumentException("thread counts must be positive: " + t);
+            }
+            sweep.add(t);
+        }
+
+        boolean fork = Boolean.parseBoolean(options.getOrDefault("fork", "true"));
+        boolean header = Boolean.parseBoolean(options.getOrDefault("header", "true"));
+        List<String> jvmArgs = childJvmArgs(options.getOrDefault("jvmArgs", ""));
+
+        PrintStream out = options.containsKey("out")
+                ? new PrintStream(Files.newOutputStream(Paths.get(options.get("out"))), true)
+                : System.out;
+        try {
+            if (header) {
+                out.println("workload,size,warmup,threads,median_ms,speedup,efficiency,serial_fraction,amdahl_speedup");
+            }
+            for (Workload workload : workloads) {
+                for (int size : sizes) {
+                    if (!fork) {
+                        workload.prepare(size);
+                    }
+                    for (int warmup : warmups) {
+                        if (fork) {
+                            runForked(out, jvmArgs, workload, size, warmup, sweep, runs);
+                        } else {
+                            report(out, workload, size, warmup, measure(workload, sweep, warmup, runs));
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (out != System.out) {
+                out.close();
+            }
+        }
+    }
+
+    // This JVM's options, so forked measurements run under the configuration the user launched, plus --jvmArgs
+    private static List<String> childJvmArgs(String extra) {
+        List<String> args = new ArrayList<>();
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            // A second debugger agent would fight over the same port
+            if (!arg.startsWith("-agentlib:jdwp") && !arg.startsWith("-Xrunjdwp")) {
+                args.add(arg);
+            }
+        }
+        for (String arg : extra.trim().split("\\s+")) {
+            if (!arg.isEmpty()) {
+                args.add(arg);
+            }
+        }
+        return args;
+    }
+
+    // Runs one configuration in a child JVM with the same classpath and JVM options and copies its CSV rows to out
+    private static void runForked(PrintStream out, List<String> jvmArgs, Workload workload, int size, int warmup,
+            TreeSet<Integer> sweep, int runs) throws Exception {
+        StringBuilder threads = new StringBuilder();
+        for (int t : sweep) {
+            threads.append(threads.length() == 0 ? "" : ",").append(t);
+        }
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmArgs);
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), "task15",
+                "--workloads=" + workload.name(), "--sizes=" + size, "--warmup=" + warmup,
+                "--threads=" + threads, "--runs=" + runs, "--fork=false", "--header=false"));
+        Process child = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(child.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                out.println(line);
+            }
+        }
+        int exit = child.waitFor();
+        if (exit != 0) {
+            throw new IllegalStateException(workload.name() + " size " + size + " warmup " + warmup
+                    + " failed with exit code " + exit);
+        }
+    }
+
+    // Runs the workload for every thread count and returns the median time in nanoseconds per thread count
+    private static Map<Integer, Long> measure(Workload workload, TreeSet<Integer> sweep, int warmup, int runs)
+            throws Exception {
+        // Warm every thread count equally before anything is timed
+        for (int i = 0; i < warmup; i++) {
+            for (int threads : sweep) {
+                workload.run(threads);
+            }
+        }
+
+        // Round-robin over the thread counts, starting one further along each round,
+        // so JIT and GC drift hit all of them alike instead of always penalising the first
+        Integer[] order = sweep.toArray(new Integer[0]);
+        Map<Integer, long[]> times = new LinkedHashMap<>();
+        for (int threads : order) {
+            times.put(threads, new long[runs]);
+        }
+        Long expected = null;
+        for (int i = 0; i < runs; i++) {
+            for (int k = 0; k < order.length; k++) {
+                int threads = order[(i + k) % order.length];
+                long start = System.nanoTime();
+                long result = workload.run(threads);
+                times.get(threads)[i] = System.nanoTime() - start;
+
+                // A faster wrong answer is not a speedup
+                if (expected == null) {
+                    expected = result;
+                } else if (result != expected) {
+                    throw new IllegalStateException(workload.name() + " with " + threads
+                            + " threads returned " + result + ", expected " + expected);
+                }
+            }
+        }
+
+        Map<Integer, Long> medians = new LinkedHashMap<>();
+        for (Map.Entry<Integer, long[]> entry : times.entrySet()) {
+            long[] sorted = entry.getValue();
+            Arrays.sort(sorted);
+            medians.put(entry.getKey(), sorted[runs / 2]);
+        }
+        return medians;
+    }
+
+    private static void report(PrintStream out, Workload workload, int size, int warmup, Map<Integer, Long> medians) {
+        double base = medians.get(1);
+
+        // Least squares for y = f * x with x = 1 - 1/p and y = T(p)/T(1) - 1/p
+        double sxy = 0;
+        double sxx = 0;
+        for (Map.Entry<Integer, Long> entry : medians.entrySet()) {
+            double p = entry.getKey();
+            double x = 1 - 1 / p;
+            double y = entry.getValue() / base - 1 / p;
+            sxy += x * y;
+            sxx += x * x;
+        }
+        double serialFraction = sxx == 0 ? 1 : Math.min(1, Math.max(0, sxy / sxx));
+
+        for (Map.Entry<Integer, Long> entry : medians.entrySet()) {
+            int p = entry.getKey();
+            double speedup = base / entry.getValue();
+            double amdahl = 1 / (serialFraction + (1 - serialFraction) / p);
+            out.printf("%s,%d,%d,%d,%.3f,%.3f,%.3f,%.4f,%.3f%n", workload.name(), size, warmup, p,
+                    entry.getValue() / 1e6, speedup, speedup / p, serialFraction, amdahl);
+        }
+    }
+
+    private static List<Workload> selectWorkloads(String names) {
+        List<Workload> all = List.of(new SumThreadWorkload(), new SumRunnableWorkload(), new IncrementWorkload(),
+                new WordCountWorkload(), new ForkJoinSumWorkload());
+        if (names.equals("all")) {
+            return all;
+        }
+        List<Workload> selected = new ArrayList<>();
+        for (String name : names.split(",")) {
+            Workload match = all.stream().filter(w -> w.name().equals(name.trim())).findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown workload: " + name));
+            selected.add(match);
+        }
+        return selected;
+    }
+
+    // 1, 2, 4, ... up to the number of cores, plus the core count itself
+    private static String defaultThreadCounts() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        StringBuilder sb = new StringBuilder();
+        for (int t = 1; t < cores; t *= 2) {
+            sb.append(t).append(',');
+        }
+        return sb.append(cores).toString();
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private static int[] parseInts(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+}
+
+/**
+ * Common shape of every measured workload.
+ */
+interface Workload {
+
+    // Name used in --workloads and in the CSV
+    String name();
+
+    // Builds the input for the given size; not timed
+    void prepare(int size) throws Exception;
+
+    // Runs the workload once with the given number of threads and returns a checksum of the result
+    long run(int threads) throws Exception;
+}
+
+/**
+ * task2's sumThread (extends Thread), with the 1..n range split across the threads.
+ */
+class SumThreadWorkload implements Workload {
+    private int size;
+
+    @Override
+    public String name() {
+        return "sumThread";
+    }
+
+    @Override
+    public void prepare(int size) {
+        this.size = size;
+    }
+
+    @Override
+    public long run(int threads) throws InterruptedException {
+        RangeSumThread[] workers = new RangeSumThread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new RangeSumThread(1 + (long) size * i / threads, (long) size * (i + 1) / threads);
+            workers[i].start();
+        }
+        long sum = 0;
+        for (RangeSumThread worker : workers) {
+            worker.join();
+            sum += worker.sum;
+        }
+        return sum;
+    }
+
+    private static class RangeSumThread extends Thread {
+        private final long from;
+        private final long to;
+        long sum;
+
+        RangeSumThread(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run() {
+            for (long i = from; i <= to; i++) {
+                sum += i;
+            }
+        }
+    }
+}
+
+/**
+ * task2's sumThread1 (implements Runnable), with the 1..n range split across the threads.
+ */
+class SumRunnableWorkload implements Workload {
+    private int size;
+
+    @Override
+    public String name() {
+        return "sumThread1";
+    }
+
+    @Override
+    public void prepare(int size) {
+        this.size = size;
+    }
+
+    @Override
+    public long run(int threads) throws InterruptedException {
+        RangeSum[] parts = new RangeSum[threads];
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            parts[i] = new RangeSum(1 + (long) size * i / threads, (long) size * (i + 1) / threads);
+            workers[i] = new Thread(parts[i]);
+            workers[i].start();
+        }
+        long sum = 0;
+        for (int i = 0; i < threads; i++) {
+            workers[i].join();
+            sum += parts[i].sum;
+        }
+        return sum;
+    }
+
+    private static class RangeSum implements Runnable {
+        private final long from;
+        private final long to;
+        long sum;
+
+        RangeSum(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run() {
+            for (long i = from; i <= to; i++) {
+                sum += i;
+            }
+        }
+    }
+}
+
+/**
+ * task6's IncrementTask: every thread increments one shared AtomicInteger, size increments in total.
+ */
+class IncrementWorkload implements Workload {
+    private int size;
+
+    @Override
+    public String name() {
+        return "IncrementTask";
+    }
+
+    @Override
+    public void prepare(int size) {
+        this.size = size;
+    }
+
+    @Override
+    public long run(int threads) throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger(0);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int increments = size / threads + (i < size % threads ? 1 : 0);
+            workers[i] = new Thread(() -> {
+                for (int j = 0; j < increments; j++) {
+                    counter.incrementAndGet();
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return counter.get();
+    }
+}
+
+/**
+ * task8's processSentence: word frequencies in a ConcurrentHashMap, one pool task per sentence.
+ * size is the number of words; the sentences are built from task8's vocabulary.
+ */
+class WordCountWorkload implements Workload {
+    private static final String[] VOCABULARY = (
+            "Java is a programming language Concurrent collections are useful "
+            + "Java collections are part of the Java API ConcurrentHashMap is a thread-safe map").split(" ");
+    private static final int WORDS_PER_SENTENCE = 8;
+
+    private List<String> sentences;
+
+    @Override
+    public String name() {
+        return "processSentence";
+    }
+
+    @Override
+    public void prepare(int size) {
+        sentences = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            sb.append(VOCABULARY[(i * 7) % VOCABULARY.length]);
+            if ((i + 1) % WORDS_PER_SENTENCE == 0 || i == size - 1) {
+                sentences.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(' ');
+            }
+        }
+    }
+
+    @Override
+    public long run(int threads) throws InterruptedException {
+        ConcurrentHashMap<String, Integer> wordFrequencyMap = new ConcurrentHashMap<>();
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        for (String sentence : sentences) {
+            executorService.submit(() -> processSentence(sentence, wordFrequencyMap));
+        }
+        // awaitTermination returns only after every worker thread has exited
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.HOURS);
+
+        long total = 0;
+        for (int count : wordFrequencyMap.values()) {
+            total += count;
+        }
+        return total * 31 + wordFrequencyMap.size();
+    }
+
+    private static void processSentence(String sentence, ConcurrentHashMap<String, Integer> wordFrequencyMap) {
+        for (String word : sentence.split("\\s+")) {
+            wordFrequencyMap.merge(word.toLowerCase(), 1, Integer::sum);
+        }
+    }
+}
+
+/**
+ * task9's sumTask: recursive array sum with the same threshold, on a ForkJoinPool of the given parallelism.
+ */
+class ForkJoinSumWorkload implements Workload {
+    private static final int THRESHOLD = 10;
+
+    private int[] array;
+
+    @Override
+    public String name() {
+        return "sumTask";
+    }
+
+    @Override
+    public void prepare(int size) {
+        array = new int[size];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i + 1;
+        }
+    }
+
+    @Override
+    public long run(int threads) throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new SumTask(array, 0, array.length));
+        } finally {
+            // Don't let this pool's workers linger into the next measurement
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.HOURS);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class SumTask extends RecursiveTask<Long> {
+        private final int[] array;
+        private final int start;
+        private final int end;
+
+        SumTask(int[] array, int start, int end) {
+            this.array = array;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Long compute() {
+            if (end - start > THRESHOLD) {
+                int mid = (start + end) / 2;
+                SumTask leftTask = new SumTask(array, start, mid);
+                SumTask rightTask = new SumTask(array, mid, end);
+                leftTask.fork();
+                long rightResult = rightTask.compute();
+                long leftResult = leftTask.join();
+                return leftResult + rightResult;
+            }
+            long sum = 0;
+            for (int i = start; i < end; i++) {
+                sum += array[i];
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,436 @@
+// 16. Asynchronous Logging
+// Problem: Almost every task calls System.out.println from its hot loop, and task11 does it while holding the write lock.
+// PrintStream is synchronized, so the output serializes all threads and stretches every critical section.
+// Task: Write a Java program where threads hand log records to a lock-free bounded buffer without allocating,
+// and a single background thread formats, batches and flushes them, with a drop-or-block policy and a flush on shutdown.
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Stack;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This program runs the push/pop stack from task11 twice: once calling println on a synchronized
+ * PrintStream inside the write lock, the way task11 uses System.out, and once handing the same messages
+ * to AsyncLog. It reports the wall time and the total time spent holding the write lock for both runs.
+ *
+ * Both runs write to the same kind of stream, a PrintStream over a buffered file without autoflush.
+ * The synchronous run only flushes when its buffer fills and on close, while AsyncLog flushes after
+ * every batch, so if anything the comparison favours the synchronous run.
+ *
+ * Usage: java task16 [operationsPerThread]
+ *
+ * Author: Aman Malik - amanxcvii
+ */
+public class task16 {
+
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+        try (PrintStream syncOut = open(Paths.get("task16-sync.log"))) {
+            LoggedStack stack = new LoggedStack(syncOut, null);
+            run("PrintStream (sync)", stack, operations);
+        }
+
+        try (PrintStream asyncOut = open(Paths.get("task16-async.log"))) {
+            AsyncLog log = new AsyncLog(asyncOut, 1 << 14, 512, AsyncLog.Overflow.BLOCK);
+            log.start();
+            LoggedStack stack = new LoggedStack(null, log);
+            run("AsyncLog", stack, operations);
+            log.close();
+            System.out.println("AsyncLog dropped records: " + log.dropped());
+        }
+    }
+
+    private static void run(String label, LoggedStack stack, int operations) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        long start = System.nanoTime();
+        for (int i = 0; i < 2; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < operations; j++) {
+                    stack.popData();
+                }
+            });
+        }
+        for (int i = 0; i < 2; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < operations; j++) {
+                    stack.pushData();
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-20s wall time: %6d ms, write lock held: %6d ms%n",
+                label, elapsed / 1_000_000, stack.lockHeldNanos() / 1_000_000);
+    }
+
+    private static PrintStream open(Path file) throws IOException {
+        return new PrintStream(new BufferedOutputStream(Files.newOutputStream(file)), false);
+    }
+}
+
+/**
+ * task11's stack, logging either straight to a PrintStream or through an AsyncLog.
+ */
+class LoggedStack {
+    private final Stack<Integer> sharedStack = new Stack<>();
+    private final ReentrantReadWriteLock.WriteLock writeLock = new ReentrantReadWriteLock().writeLock();
+    private static final int MAX_SIZE = 10; // Limit stack size
+
+    private final PrintStream out;
+    private final AsyncLog log;
+    private final LongAdder lockHeld = new LongAdder();
+
+    LoggedStack(PrintStream out, AsyncLog log) {
+        this.out = out;
+        this.log = log;
+    }
+
+    void popData() {
+        writeLock.lock();
+        long start = System.nanoTime();
+        try {
+            String name = Thread.currentThread().getName();
+            if (!sharedStack.isEmpty()) {
+                int value = sharedStack.pop();
+                if (log != null) {
+                    log.log("{} popped: {}", name, value);
+                } else {
+                    out.println(name + " popped: " + value);
+                }
+            } else if (log != null) {
+                log.log("{} found stack empty.", name);
+            } else {
+                out.println(name + " found stack empty.");
+            }
+        } finally {
+            lockHeld.add(System.nanoTime() - start);
+            writeLock.unlock();
+        }
+    }
+
+    void pushData() {
+        writeLock.lock();
+        long start = System.nanoTime();
+        try {
+            String name = Thread.currentThread().getName();
+            if (sharedStack.size() < MAX_SIZE) {
+                int value = ThreadLocalRandom.current().nextInt(100);
+                sharedStack.push(value);
+                if (log != null) {
+                    log.log("{} pushed: {}", name, value);
+                } else {
+                    out.println(name + " pushed: " + value);
+                }
+            } else if (log != null) {
+                log.log("{} stack is full, skipping push.", name);
+            } else {
+                out.println(name + " stack is full, skipping push.");
+            }
+        } finally {
+            lockHeld.add(System.nanoTime() - start);
+            writeLock.unlock();
+        }
+    }
+
+    long lockHeldNanos() {
+        return lockHeld.sum();
+    }
+}
+
+/**
+ * Asynchronous log sink.
+ *
+ * Producers copy a record (a constant template, one optional reference and one optional long) into a
+ * preallocated slot of a bounded multi-producer/single-consumer ring buffer. Slots are claimed with a
+ * CAS on the tail and published through a per-slot sequence number, so logging takes no lock and does
+ * not allocate. A single daemon thread drains up to batchSize records at a time, replaces each "{}" in
+ * the template with the next argument, and writes and flushes the whole batch at once.
+ *
+ * When the buffer is full, Overflow.DROP discards the record and counts it, Overflow.BLOCK spins and
+ * then parks until the consumer frees a slot. close() drains everything that was accepted; start()
+ * registers it as a shutdown hook so records are not lost when the JVM exits.
+ *
+ * A record is accepted when its producer still sees the log open after claiming a slot. The consumer
+ * only stops once it has seen the log closed and then caught up with the tail, so any slot claimed
+ * before that point is drained, and a producer that finds the log closed after claiming a slot
+ * publishes it as a skipped record and counts it in dropped(). No record disappears unaccounted.
+ *
+ * Formatting calls the caller's toString(). If that throws a RuntimeException the record is written
+ * as a placeholder line naming the template and the exception, and draining carries on. If the logger
+ * thread dies anyway (an Error), it counts every record it can no longer write in dropped(), and from
+ * then on log() drops instead of blocking, so a producer never waits for a consumer that is gone.
+ */
+class AsyncLog implements AutoCloseable {
+
+    enum Overflow { DROP, BLOCK }
+
+    private static final int NO_ARGS = 0;
+    private static final int LONG_ARG = 1;
+    private static final int REF_ARG = 2;
+    private static final int REF_AND_LONG_ARGS = 3;
+    private static final int SKIPPED = 4; // slot claimed after close(), nothing to write
+
+    private static final int SPINS_BEFORE_PARK = 100;
+    private static final long PARK_NANOS = 50_000;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final PrintStream out;
+    private final int batchSize;
+    private final Overflow overflow;
+
+    // Ring buffer: slot i is free for position p when sequence[i] == p and readable when it is p + 1
+    private final int mask;
+    private final AtomicLongArray sequence;
+    private final String[] templates;
+    private final Object[] refs;
+    private final long[] values;
+    private final byte[] kinds;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // consumer thread only
+
+    private final LongAdder dropped = new LongAdder();
+    private final StringBuilder batch = new StringBuilder(); // consumer thread only
+    private final Thread consumer;
+    private final Thread shutdownHook;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean consumerDied;
+    private int batched; // consumer thread only: records released but not yet written
+
+    /**
+     * @param out       Destination stream; only the consumer thread writes to it
+     * @param capacity  Number of buffered records, rounded up to a power of two
+     * @param batchSize Maximum number of records written per flush
+     * @param overflow  What log() does when the buffer is full
+     */
+    AsyncLog(PrintStream out, int capacity, int batchSize, Overflow overflow) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("capacity and batchSize must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.out = out;
+        this.batchSize = batchSize;
+        this.overflow = overflow;
+        this.mask = size - 1;
+        this.sequence = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequence.set(i, i);
+        }
+        this.templates = new String[size];
+        this.refs = new Object[size];
+        this.values = new long[size];
+        this.kinds = new byte[size];
+
+        this.consumer = new Thread(this::drainLoop, "async-log");
+        this.consumer.setDaemon(true);
+        this.shutdownHook = new Thread(this::close, "async-log-shutdown");
+    }
+
+    void start() {
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        consumer.start();
+    }
+
+    void log(String template) {
+        offer(template, null, 0, NO_ARGS);
+    }
+
+    void log(String template, long value) {
+        offer(template, null, value, LONG_ARG);
+    }
+
+    void log(String template, Object ref) {
+        offer(template, ref, 0, REF_ARG);
+    }
+
+    void log(String template, Object ref, long value) {
+        offer(template, ref, value, REF_AND_LONG_ARGS);
+    }
+
+    // Number of records discarded because the buffer was full or the log was closed
+    long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops accepting records, writes out everything already accepted and flushes the stream.
+     * Safe to call more than once and from several threads; the shutdown hook calls it too. Only the
+     * first call closes the log and removes the hook, every call waits until the drain has finished.
+     * Records logged while close() runs are counted in dropped().
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            LockSupport.unpark(consumer);
+            if (Thread.currentThread() != shutdownHook) {
+                try {
+                    Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                } catch (IllegalStateException e) {
+                    // JVM is already shutting down
+                }
+            }
+        }
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void offer(String template, Object ref, long value, int kind) {
+        int spins = 0;
+        long pos = tail.get();
+        while (true) {
+            if (closed.get() || consumerDied) {
+                dropped.increment();
+                return;
+            }
+            int index = (int) (pos & mask);
+            long available = sequence.get(index) - pos;
+            if (available == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    // The consumer may already have made its last pass; then the slot must not carry a record
+                    boolean accepted = !closed.get() && !consumerDied;
+                    templates[index] = accepted ? template : null;
+                    refs[index] = accepted ? ref : null;
+                    values[index] = value;
+                    kinds[index] = (byte) (accepted ? kind : SKIPPED);
+                    sequence.set(index, pos + 1); // publish to the consumer
+                    if (!accepted) {
+                        dropped.increment();
+                    }
+                    return;
+                }
+                pos = tail.get();
+            } else if (available < 0) {
+                // Buffer is full
+                if (overflow == Overflow.DROP) {
+                    dropped.increment();
+                    return;
+                }
+                if (++spins < SPINS_BEFORE_PARK) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+                pos = tail.get();
+            } else {
+                pos = tail.get(); // another producer took this slot
+            }
+        }
+    }
+
+    private void drainLoop() {
+        try {
+            while (!closed.get()) {
+                if (drainBatch() == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            // Any producer that claims a slot after this read of tail sees closed and skips its record,
+            // so catching up with tail drains every accepted record
+            while (tail.get() != head) {
+                if (drainBatch() == 0) {
+                    Thread.onSpinWait();
+                }
+            }
+            out.flush();
+        } catch (Throwable t) {
+            consumerDied = true;
+            discardRemaining();
+            throw t;
+        }
+    }
+
+    // The logger thread is dying: count what it can no longer write, the same way close() catches up with tail
+    private void discardRemaining() {
+        dropped.add(batched);
+        batched = 0;
+        while (tail.get() != head) {
+            int index = (int) (head & mask);
+            if (sequence.get(index) != head + 1) {
+                Thread.onSpinWait(); // claimed but not yet published
+                continue;
+            }
+            if (kinds[index] != SKIPPED) {
+                dropped.increment();
+            }
+            templates[index] = null;
+            refs[index] = null;
+            sequence.set(index, head + mask + 1);
+            head++;
+        }
+    }
+
+    // Formats up to batchSize published records into one write; returns how many were taken
+    private int drainBatch() {
+        int count = 0;
+        while (count < batchSize) {
+            int index = (int) (head & mask);
+            if (sequence.get(index) != head + 1) {
+                break; // empty, or the next slot is claimed but not yet published
+            }
+            if (kinds[index] != SKIPPED) {
+                int mark = batch.length();
+                try {
+                    append(templates[index], refs[index], values[index], kinds[index]);
+                } catch (RuntimeException e) {
+                    // A throwing toString() must not take the logger thread down with it
+                    batch.setLength(mark);
+                    batch.append("[AsyncLog] could not format \"").append(templates[index]).append("\": ")
+                            .append(e.getClass().getName()).append(System.lineSeparator());
+                }
+                batched++;
+            }
+            templates[index] = null;
+            refs[index] = null;
+            sequence.set(index, head + mask + 1); // hand the slot back for the next lap
+            head++;
+            count++;
+        }
+        if (count > 0) {
+            out.append(batch);
+            out.flush();
+            batch.setLength(0);
+            batched = 0;
+        }
+        return count;
+    }
+
+    private void append(String template, Object ref, long value, int kind) {
+        boolean refPending = kind == REF_ARG || kind == REF_AND_LONG_ARGS;
+        boolean valuePending = kind == LONG_ARG || kind == REF_AND_LONG_ARGS;
+        int from = 0;
+        int at;
+        while ((refPending || valuePending) && (at = template.indexOf("{}", from)) >= 0) {
+            batch.append(template, from, at);
+            if (refPending) {
+                batch.append(ref);
+                refPending = false;
+            } else {
+                batch.append(value);
+                valuePending = false;
+            }
+            from = at + 2;
+        }
+        batch.append(template, from, template.length()).append(System.lineSeparator());
+    }
+}